@@ -1,10 +1,11 @@
 package com.example.emailbulksender.config;
 
+import com.example.emailbulksender.metrics.InstrumentedJavaMailSender;
+import com.example.emailbulksender.metrics.SendMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import java.util.Properties;
 
@@ -24,8 +25,9 @@ public class MailConfig {
     private String password;
 
     @Bean
-    public JavaMailSender javaMailSender() {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    public JavaMailSender javaMailSender(SendMetrics sendMetrics) {
+        // Instrumented transport for per-phase SMTP timings
+        InstrumentedJavaMailSender mailSender = new InstrumentedJavaMailSender(sendMetrics);
 
         mailSender.setHost(host);
         mailSender.setPort(port);
@@ -0,0 +1,31 @@
+package com.example.emailbulksender.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class SchedulerConfig {
+
+    @Value("${scheduler.send-slots:4}")
+    private int sendSlots;
+
+    @Value("${scheduler.shutdown-timeout-seconds:30}")
+    private int shutdownTimeoutSeconds;
+
+    /**
+     * One thread per send slot. On shutdown the scheduler stops handing out work
+     * and the pool waits for in-progress SMTP sends to finish.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor sendSlotExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(sendSlots);
+        executor.setMaxPoolSize(sendSlots);
+        executor.setThreadNamePrefix("send-slot-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownTimeoutSeconds);
+        return executor;
+    }
+}
@@ -1,22 +1,29 @@
 package com.example.emailbulksender.controller;
 
 import com.example.emailbulksender.dto.ApiResponse;
+import com.example.emailbulksender.dto.AttachmentInfo;
+import com.example.emailbulksender.dto.EmailIngestResult;
 import com.example.emailbulksender.dto.EmailRequest;
-import com.example.emailbulksender.service.EmailService;
+import com.example.emailbulksender.service.AttachmentStore;
+import com.example.emailbulksender.service.CampaignScheduler;
+import com.example.emailbulksender.service.EmailIngestService;
 import com.example.emailbulksender.service.ExcelReaderService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/email")
@@ -28,16 +35,21 @@ public class EmailController {
     private ExcelReaderService excelReaderService;
 
     @Autowired
-    private EmailService emailService;
+    private EmailIngestService emailIngestService;
 
-    // Store uploaded emails temporarily (in production, use database or cache)
-    private List<String> uploadedEmails = new ArrayList<>();
+    @Autowired
+    private CampaignScheduler campaignScheduler;
 
-    // Store uploaded attachment file temporarily
-    private File attachmentFile = null;
-    private String attachmentFileName = null;
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    // Store uploaded emails temporarily (in production, use database or cache)
+    // Guarded by its own monitor: requests read and replace it concurrently
+    private final Set<String> uploadedEmails = new LinkedHashSet<>();
 
-    private static final String UPLOAD_DIR = "uploads/attachments/";
+    // Uploaded attachments by upload id, each holding one reference to its blob in the attachment store.
+    // Guarded by its own monitor, which is also held while references are taken or dropped for its entries
+    private final Map<String, AttachmentInfo> uploadedAttachments = new LinkedHashMap<>();
 
     /**
      * Upload Excel/CSV file and extract email addresses
@@ -51,19 +63,26 @@ public class EmailController {
             }
 
             // Read emails from file
-            uploadedEmails = excelReaderService.readEmailsFromFile(file);
+            List<String> emails = excelReaderService.readEmailsFromFile(file);
 
-            if (uploadedEmails.isEmpty()) {
+            int count;
+            synchronized (uploadedEmails) {
+                uploadedEmails.clear();
+                uploadedEmails.addAll(emails);
+                count = uploadedEmails.size();
+            }
+
+            if (count == 0) {
                 return ResponseEntity.badRequest()
                         .body(new ApiResponse(false, "No valid email addresses found in the file"));
             }
 
-            log.info("Successfully extracted {} email addresses from file", uploadedEmails.size());
+            log.info("Successfully extracted {} email addresses from file", count);
 
             return ResponseEntity.ok(new ApiResponse(
                     true,
-                    "File uploaded successfully. Found " + uploadedEmails.size() + " email addresses",
-                    uploadedEmails.size()
+                    "File uploaded successfully. Found " + count + " email addresses",
+                    count
             ));
 
         } catch (Exception e) {
@@ -74,38 +93,40 @@ public class EmailController {
     }
 
     /**
-     * Add email addresses manually
+     * Add email addresses manually (JSON array of strings).
+     * All or nothing: a malformed body adds no addresses, so the request is
+     * parsed completely before anything is merged into the upload list.
      */
-    @PostMapping("/add-emails")
-    public ResponseEntity<ApiResponse> addEmailsManually(@RequestBody List<String> emails) {
+    @PostMapping(value = "/add-emails", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse> addEmailsManually(HttpServletRequest request) {
         try {
-            if (emails == null || emails.isEmpty()) {
+            Set<String> parsed = new LinkedHashSet<>();
+            EmailIngestResult result = emailIngestService.ingest(request.getInputStream(), false, parsed);
+
+            if (result.getError() != null) {
                 return ResponseEntity.badRequest()
-                        .body(new ApiResponse(false, "Please provide at least one email address"));
+                        .body(new ApiResponse(false, "Invalid request body: " + result.getError()));
             }
 
-            // Validate and add emails
-            int validCount = 0;
-            for (String email : emails) {
-                if (email != null && !email.trim().isEmpty() && isValidEmail(email.trim())) {
-                    if (!uploadedEmails.contains(email.trim())) {
-                        uploadedEmails.add(email.trim());
-                        validCount++;
-                    }
-                }
+            if (result.getReceived() == 0) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponse(false, "Please provide at least one email address"));
             }
 
-            if (validCount == 0) {
+            int added = mergeEmails(new ArrayList<>(parsed));
+            int total = emailCount();
+
+            if (added == 0) {
                 return ResponseEntity.badRequest()
                         .body(new ApiResponse(false, "No valid email addresses provided"));
             }
 
-            log.info("Successfully added {} email addresses manually", validCount);
+            log.info("Successfully added {} email addresses manually", added);
 
             return ResponseEntity.ok(new ApiResponse(
                     true,
-                    "Successfully added " + validCount + " email address(es). Total: " + uploadedEmails.size(),
-                    uploadedEmails.size()
+                    "Successfully added " + added + " email address(es). Total: " + total,
+                    total
             ));
 
         } catch (Exception e) {
@@ -116,10 +137,36 @@ public class EmailController {
     }
 
     /**
-     * Validate email format
+     * Bulk add email addresses from a JSON array or NDJSON body, with per-item rejection counts.
+     * The body is streamed and merged in batches, so large payloads are not materialized in memory.
+     * Addresses before a syntax error are kept and reported in the result.
      */
-    private boolean isValidEmail(String email) {
-        return email != null && email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    @PostMapping(value = "/add-emails/stream", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ApiResponse> addEmailsStreaming(HttpServletRequest request) {
+        try {
+            boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+            EmailIngestResult result = emailIngestService.ingest(request.getInputStream(), ndjson, this::mergeEmails);
+            result.setTotalEmails(emailCount());
+
+            String message = "Added " + result.getAccepted() + " of " + result.getReceived() + " email address(es), rejected "
+                    + result.getRejected() + " (duplicates: " + result.getDuplicates() + ", invalid: " + result.getInvalid()
+                    + ", not a string: " + result.getNotString() + "). Total: " + result.getTotalEmails();
+
+            log.info("Streamed {} email addresses: {} accepted, {} rejected",
+                    result.getReceived(), result.getAccepted(), result.getRejected());
+
+            if (result.getError() != null) {
+                return ResponseEntity.badRequest()
+                        .body(new ApiResponse(false, "Invalid request body: " + result.getError() + ". " + message, result));
+            }
+
+            return ResponseEntity.ok(new ApiResponse(true, message, result));
+
+        } catch (Exception e) {
+            log.error("Error streaming emails: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error adding emails: " + e.getMessage()));
+        }
     }
 
     /**
@@ -133,31 +180,18 @@ public class EmailController {
                         .body(new ApiResponse(false, "Please select a file to upload"));
             }
 
-            // Create upload directory if not exists
-            File uploadDir = new File(UPLOAD_DIR);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
-
-            // Save file
-            String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-            Path filePath = Paths.get(UPLOAD_DIR + fileName);
-            Files.write(filePath, file.getBytes());
-
-            // Clear previous attachment if exists
-            if (attachmentFile != null && attachmentFile.exists()) {
-                attachmentFile.delete();
+            // Each upload keeps its own id and name; identical content shares one stored blob
+            AttachmentInfo attachment = attachmentStore.store(file);
+            synchronized (uploadedAttachments) {
+                uploadedAttachments.put(attachment.getId(), attachment);
             }
 
-            attachmentFile = filePath.toFile();
-            attachmentFileName = file.getOriginalFilename();
-
-            log.info("Attachment file uploaded: {}", attachmentFileName);
+            log.info("Attachment file uploaded: {} ({})", attachment.getFileName(), attachment.getBlobId());
 
             return ResponseEntity.ok(new ApiResponse(
                     true,
-                    "Attachment uploaded successfully: " + attachmentFileName,
-                    attachmentFileName
+                    "Attachment uploaded successfully: " + attachment.getFileName(),
+                    attachment
             ));
 
         } catch (Exception e) {
@@ -168,17 +202,12 @@ public class EmailController {
     }
 
     /**
-     * Remove attachment file
+     * Remove all uploaded attachments
      */
     @DeleteMapping("/attachment")
     public ResponseEntity<ApiResponse> removeAttachment() {
         try {
-            if (attachmentFile != null && attachmentFile.exists()) {
-                attachmentFile.delete();
-                log.info("Attachment file removed: {}", attachmentFileName);
-            }
-            attachmentFile = null;
-            attachmentFileName = null;
+            releaseAttachments();
 
             return ResponseEntity.ok(new ApiResponse(true, "Attachment removed successfully"));
         } catch (Exception e) {
@@ -188,13 +217,37 @@ public class EmailController {
         }
     }
 
+    /**
+     * Remove a single uploaded attachment
+     */
+    @DeleteMapping("/attachment/{id}")
+    public ResponseEntity<ApiResponse> removeAttachment(@PathVariable String id) {
+        AttachmentInfo attachment;
+        synchronized (uploadedAttachments) {
+            attachment = uploadedAttachments.remove(id);
+            if (attachment == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse(false, "Attachment not found: " + id));
+            }
+            attachmentStore.release(attachment.getBlobId());
+        }
+        log.info("Attachment file removed: {}", attachment.getFileName());
+
+        return ResponseEntity.ok(new ApiResponse(true, "Attachment removed successfully: " + attachment.getFileName()));
+    }
+
     /**
      * Send bulk emails to all uploaded email addresses
      */
     @PostMapping("/send")
     public ResponseEntity<ApiResponse> sendBulkEmails(@RequestBody EmailRequest emailRequest) {
         try {
-            if (uploadedEmails.isEmpty()) {
+            List<String> recipients;
+            synchronized (uploadedEmails) {
+                recipients = new ArrayList<>(uploadedEmails);
+            }
+
+            if (recipients.isEmpty()) {
                 return ResponseEntity.badRequest()
                         .body(new ApiResponse(false, "Please upload a file with email addresses first"));
             }
@@ -209,22 +262,59 @@ public class EmailController {
                         .body(new ApiResponse(false, "Email message is required"));
             }
 
-            // Send emails asynchronously with or without attachment
-            emailService.sendBulkEmails(
-                    new ArrayList<>(uploadedEmails),
-                    emailRequest.getSubject(),
-                    emailRequest.getMessage(),
-                    attachmentFile
-            );
-
-            String message = "Emails sending started successfully to " + uploadedEmails.size() + " recipients";
-            if (attachmentFile != null) {
-                message += " with attachment: " + attachmentFileName;
+            // References taken for the campaign so far, released once its email is prepared
+            List<AttachmentInfo> attachments = new ArrayList<>();
+            String campaignId;
+            try {
+                // Look up and retain in one step so a concurrent removal can't drop a blob in between
+                synchronized (uploadedAttachments) {
+                    List<AttachmentInfo> selected = new ArrayList<>();
+                    if (emailRequest.getAttachmentIds() != null && !emailRequest.getAttachmentIds().isEmpty()) {
+                        for (String id : emailRequest.getAttachmentIds()) {
+                            AttachmentInfo attachment = uploadedAttachments.get(id);
+                            if (attachment == null) {
+                                return ResponseEntity.badRequest()
+                                        .body(new ApiResponse(false, "Unknown attachment: " + id));
+                            }
+                            selected.add(attachment);
+                        }
+                    } else {
+                        selected.addAll(uploadedAttachments.values());
+                    }
+
+                    // Keep the blobs while the campaign email is built; it then carries its own copy
+                    for (AttachmentInfo attachment : selected) {
+                        attachmentStore.retain(attachment.getBlobId());
+                        attachments.add(attachment);
+                    }
+                }
+
+                // Queue the campaign; send slots are shared fairly with other running campaigns
+                campaignId = campaignScheduler.submit(
+                        recipients,
+                        emailRequest.getSubject(),
+                        emailRequest.getMessage(),
+                        attachments,
+                        emailRequest.getPriority(),
+                        emailRequest.getStartAt()
+                );
+            } finally {
+                for (AttachmentInfo attachment : attachments) {
+                    attachmentStore.release(attachment.getBlobId());
+                }
             }
 
-            log.info("Bulk email sending initiated for {} recipients", uploadedEmails.size());
+            String message = "Emails sending started successfully to " + recipients.size() + " recipients";
+            if (emailRequest.getStartAt() != null && emailRequest.getStartAt().isAfter(Instant.now())) {
+                message = "Emails scheduled for " + emailRequest.getStartAt() + " to " + recipients.size() + " recipients";
+            }
+            if (!attachments.isEmpty()) {
+                message += " with " + attachments.size() + " attachment(s)";
+            }
 
-            return ResponseEntity.ok(new ApiResponse(true, message));
+            log.info("Bulk email sending initiated for {} recipients as campaign {}", recipients.size(), campaignId);
+
+            return ResponseEntity.ok(new ApiResponse(true, message, campaignId));
 
         } catch (Exception e) {
             log.error("Error sending emails: {}", e.getMessage());
@@ -241,7 +331,19 @@ public class EmailController {
         return ResponseEntity.ok(new ApiResponse(
                 true,
                 "Email count retrieved successfully",
-                uploadedEmails.size()
+                emailCount()
+        ));
+    }
+
+    /**
+     * Get send queue depth and per-campaign progress
+     */
+    @GetMapping("/campaigns")
+    public ResponseEntity<ApiResponse> getCampaignStatus() {
+        return ResponseEntity.ok(new ApiResponse(
+                true,
+                "Campaign status retrieved successfully",
+                campaignScheduler.getStatus()
         ));
     }
 
@@ -250,11 +352,15 @@ public class EmailController {
      */
     @GetMapping("/attachment-info")
     public ResponseEntity<ApiResponse> getAttachmentInfo() {
-        if (attachmentFile != null && attachmentFile.exists()) {
+        List<AttachmentInfo> attachments;
+        synchronized (uploadedAttachments) {
+            attachments = new ArrayList<>(uploadedAttachments.values());
+        }
+        if (!attachments.isEmpty()) {
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Attachment available",
-                    attachmentFileName
+                    attachments
             ));
         }
         return ResponseEntity.ok(new ApiResponse(false, "No attachment uploaded", null));
@@ -265,18 +371,51 @@ public class EmailController {
      */
     @DeleteMapping("/clear")
     public ResponseEntity<ApiResponse> clearEmails() {
-        uploadedEmails.clear();
-
-        // Also clear attachment
-        if (attachmentFile != null && attachmentFile.exists()) {
-            attachmentFile.delete();
+        synchronized (uploadedEmails) {
+            uploadedEmails.clear();
         }
-        attachmentFile = null;
-        attachmentFileName = null;
+
+        // Also clear attachments
+        releaseAttachments();
 
         return ResponseEntity.ok(new ApiResponse(true, "Email list and attachment cleared successfully"));
     }
 
+    /**
+     * Add a batch of parsed addresses to the upload list, returning how many were new.
+     * Streams are merged batch by batch, so the list is only locked briefly.
+     */
+    private int mergeEmails(List<String> batch) {
+        int added = 0;
+        synchronized (uploadedEmails) {
+            for (String email : batch) {
+                if (uploadedEmails.add(email)) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    private int emailCount() {
+        synchronized (uploadedEmails) {
+            return uploadedEmails.size();
+        }
+    }
+
+    /**
+     * Release every uploaded attachment; queued campaigns keep their own copy in their prepared email
+     */
+    private void releaseAttachments() {
+        synchronized (uploadedAttachments) {
+            for (AttachmentInfo attachment : uploadedAttachments.values()) {
+                attachmentStore.release(attachment.getBlobId());
+                log.info("Attachment file removed: {}", attachment.getFileName());
+            }
+            uploadedAttachments.clear();
+        }
+    }
+
     /**
      * Health check endpoint for deployment platforms
      */
@@ -0,0 +1,18 @@
+package com.example.emailbulksender.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttachmentInfo {
+    // Per-upload id; uploads of identical content share one blob
+    private String id;
+    // Content hash naming the stored blob
+    private String blobId;
+    private String fileName;
+    private String contentType;
+    private long size;
+}
@@ -0,0 +1,21 @@
+package com.example.emailbulksender.dto;
+
+/**
+ * Campaign priority and its weight in the fair send scheduler.
+ * A campaign gets send slots in proportion to its weight while other campaigns are running.
+ */
+public enum CampaignPriority {
+    LOW(1),
+    NORMAL(4),
+    HIGH(16);
+
+    private final int weight;
+
+    CampaignPriority(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.emailbulksender.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignStatus {
+    private String id;
+    private CampaignPriority priority;
+    private int weight;
+    private Instant startAt;
+    private int pending;
+    private int inFlight;
+    private int sent;
+    private int failed;
+    // Fraction of send slots this campaign is currently entitled to
+    private double share;
+}
@@ -0,0 +1,22 @@
+package com.example.emailbulksender.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class EmailIngestResult {
+    private int received;
+    private int accepted;
+    // Rejections per item
+    private int duplicates;
+    private int invalid;
+    private int notString;
+    private int totalEmails;
+    // Set when the body was malformed; items before that point are kept
+    private String error;
+
+    public int getRejected() {
+        return duplicates + invalid + notString;
+    }
+}
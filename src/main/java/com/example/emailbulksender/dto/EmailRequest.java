@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,6 +15,11 @@ public class EmailRequest {
     private String message;
     private boolean hasAttachment;
     private String attachmentFileName;
+    // Uploaded attachments to include; all uploaded attachments when empty
+    private List<String> attachmentIds;
+    private CampaignPriority priority;
+    // Earliest time to start sending, immediately when null
+    private Instant startAt;
 }
 
 
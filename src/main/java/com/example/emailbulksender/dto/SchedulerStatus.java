@@ -0,0 +1,17 @@
+package com.example.emailbulksender.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerStatus {
+    private int sendSlots;
+    private int busySlots;
+    private int queueDepth;
+    private List<CampaignStatus> campaigns;
+}
@@ -0,0 +1,17 @@
+package com.example.emailbulksender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.emailbulksender.DkimSign")
+@Label("DKIM Sign")
+@Category({"Email Bulk Sender", "Send"})
+@StackTrace(false)
+public class DkimSignEvent extends Event {
+
+    @Label("Algorithm")
+    public String algorithm;
+}
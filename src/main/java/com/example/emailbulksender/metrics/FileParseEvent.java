@@ -0,0 +1,20 @@
+package com.example.emailbulksender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.emailbulksender.FileParse")
+@Label("Recipient File Parse")
+@Category({"Email Bulk Sender", "Upload"})
+@StackTrace(false)
+public class FileParseEvent extends Event {
+
+    @Label("File Name")
+    public String fileName;
+
+    @Label("Recipients")
+    public int recipients;
+}
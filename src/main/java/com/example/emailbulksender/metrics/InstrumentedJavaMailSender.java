@@ -0,0 +1,29 @@
+package com.example.emailbulksender.metrics;
+
+import jakarta.mail.NoSuchProviderException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+/**
+ * Mail sender whose SMTP connections use InstrumentedSmtpTransport,
+ * created here with this context's SendMetrics instead of through the JavaMail provider registry.
+ */
+public class InstrumentedJavaMailSender extends JavaMailSenderImpl {
+
+    private final SendMetrics sendMetrics;
+
+    public InstrumentedJavaMailSender(SendMetrics sendMetrics) {
+        this.sendMetrics = sendMetrics;
+    }
+
+    @Override
+    protected Transport getTransport(Session session) throws NoSuchProviderException {
+        String protocol = getProtocol() != null ? getProtocol() : session.getProperty("mail.transport.protocol");
+        if (protocol != null && !DEFAULT_PROTOCOL.equals(protocol)) {
+            return super.getTransport(session);
+        }
+        return new InstrumentedSmtpTransport(session, new URLName(DEFAULT_PROTOCOL, null, -1, null, null, null), sendMetrics);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.emailbulksender.metrics;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+
+/**
+ * SMTP transport that times the connect, auth and data phases of each conversation.
+ * Created by InstrumentedJavaMailSender for every connection it opens.
+ */
+public class InstrumentedSmtpTransport extends SMTPTransport {
+
+    private final SendMetrics metrics;
+    private String connectedHost;
+
+    // Open phase while protocolConnect runs: connect until the first AUTH command, auth after it
+    private SmtpPhaseEvent connectEvent;
+    private long connectStart;
+    private SmtpPhaseEvent authEvent;
+    private long authStart;
+
+    public InstrumentedSmtpTransport(Session session, URLName urlname, SendMetrics metrics) {
+        super(session, urlname);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected synchronized boolean protocolConnect(String host, int port, String user, String password) throws MessagingException {
+        connectedHost = host;
+        connectEvent = new SmtpPhaseEvent();
+        connectEvent.begin();
+        connectStart = System.nanoTime();
+        authEvent = null;
+
+        boolean success = false;
+        try {
+            success = super.protocolConnect(host, port, user, password);
+            return success;
+        } finally {
+            if (authEvent != null) {
+                finishPhase(authEvent, SmtpPhase.AUTH, authStart, success);
+            } else {
+                finishPhase(connectEvent, SmtpPhase.CONNECT, connectStart, success);
+            }
+            connectEvent = null;
+            authEvent = null;
+        }
+    }
+
+    @Override
+    public synchronized int simpleCommand(String cmd) throws MessagingException {
+        if (connectEvent != null && authEvent == null && cmd.startsWith("AUTH")) {
+            // Greeting, EHLO and STARTTLS are done, everything from here on is authentication
+            finishPhase(connectEvent, SmtpPhase.CONNECT, connectStart, true);
+            authEvent = new SmtpPhaseEvent();
+            authEvent.begin();
+            authStart = System.nanoTime();
+        }
+        return super.simpleCommand(cmd);
+    }
+
+    /**
+     * Times the whole mail transaction: envelope commands, DATA and the message body.
+     * DKIM signing is not included, messages are signed when saved before this is called.
+     */
+    @Override
+    public synchronized void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        SmtpPhaseEvent dataEvent = new SmtpPhaseEvent();
+        dataEvent.begin();
+        long start = System.nanoTime();
+
+        boolean success = false;
+        try {
+            super.sendMessage(message, addresses);
+            success = true;
+        } finally {
+            finishPhase(dataEvent, SmtpPhase.DATA, start, success);
+        }
+    }
+
+    private void finishPhase(SmtpPhaseEvent event, SmtpPhase phase, long start, boolean success) {
+        long nanos = System.nanoTime() - start;
+
+        event.phase = phase.getTag();
+        event.host = connectedHost;
+        event.success = success;
+        event.commit();
+
+        metrics.recordSmtpPhase(phase, nanos, success);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.emailbulksender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.emailbulksender.MimeBuild")
+@Label("MIME Message Build")
+@Description("Campaign message assembled, encoded and body-hashed, once per campaign")
+@Category({"Email Bulk Sender", "Send"})
+@StackTrace(false)
+public class MimeBuildEvent extends Event {
+
+    @Label("Attachments")
+    public int attachments;
+}
@@ -0,0 +1,100 @@
+package com.example.emailbulksender.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the send pipeline.
+ * All meters are registered up front so recording on the hot path is a plain field access.
+ * Template render and MIME build run once per campaign; DKIM signing, SMTP phases and
+ * sends are recorded per recipient, and signing is not part of the SMTP data phase.
+ */
+@Component
+public class SendMetrics {
+
+    private final Timer fileParseTimer;
+    private final Counter recipientsParsed;
+    private final Timer templateRenderTimer;
+    private final Timer mimeBuildTimer;
+    private final Timer dkimSignTimer;
+    private final Map<SmtpPhase, Timer> smtpPhaseTimers = new EnumMap<>(SmtpPhase.class);
+    private final Map<SmtpPhase, Counter> smtpPhaseFailures = new EnumMap<>(SmtpPhase.class);
+    private final Timer sendSuccessTimer;
+    private final Timer sendFailureTimer;
+
+    public SendMetrics(MeterRegistry registry) {
+        fileParseTimer = Timer.builder("email.file.parse")
+                .description("Time to extract recipients from an uploaded file")
+                .register(registry);
+        recipientsParsed = Counter.builder("email.file.recipients")
+                .description("Recipients extracted from uploaded files")
+                .register(registry);
+        templateRenderTimer = Timer.builder("email.template.render")
+                .description("Time to render a campaign's HTML body, once per campaign")
+                .register(registry);
+        mimeBuildTimer = Timer.builder("email.mime.build")
+                .description("Time to assemble, encode and body-hash a campaign's MIME message, once per campaign")
+                .register(registry);
+        dkimSignTimer = Timer.builder("email.dkim.sign")
+                .description("Time to DKIM-sign one message's headers")
+                .register(registry);
+
+        for (SmtpPhase phase : SmtpPhase.values()) {
+            smtpPhaseTimers.put(phase, Timer.builder("email.smtp.phase")
+                    .description("Time spent in each SMTP phase")
+                    .tag("phase", phase.getTag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+            smtpPhaseFailures.put(phase, Counter.builder("email.smtp.phase.failures")
+                    .description("SMTP phases that ended with an error")
+                    .tag("phase", phase.getTag())
+                    .register(registry));
+        }
+
+        sendSuccessTimer = Timer.builder("email.send")
+                .description("End-to-end time to send one email")
+                .tag("result", "success")
+                .publishPercentileHistogram()
+                .register(registry);
+        sendFailureTimer = Timer.builder("email.send")
+                .description("End-to-end time to send one email")
+                .tag("result", "failure")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void recordFileParse(long nanos, int recipients) {
+        fileParseTimer.record(nanos, TimeUnit.NANOSECONDS);
+        recipientsParsed.increment(recipients);
+    }
+
+    public void recordTemplateRender(long nanos) {
+        templateRenderTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMimeBuild(long nanos) {
+        mimeBuildTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDkimSign(long nanos) {
+        dkimSignTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSmtpPhase(SmtpPhase phase, long nanos, boolean success) {
+        if (success) {
+            smtpPhaseTimers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+        } else {
+            smtpPhaseFailures.get(phase).increment();
+        }
+    }
+
+    public void recordSend(long nanos, boolean success) {
+        (success ? sendSuccessTimer : sendFailureTimer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
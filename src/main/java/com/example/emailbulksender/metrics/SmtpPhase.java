@@ -0,0 +1,20 @@
+package com.example.emailbulksender.metrics;
+
+/**
+ * SMTP conversation phases timed by the instrumented transport
+ */
+public enum SmtpPhase {
+    CONNECT("connect"),
+    AUTH("auth"),
+    DATA("data");
+
+    private final String tag;
+
+    SmtpPhase(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.emailbulksender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.emailbulksender.SmtpPhase")
+@Label("SMTP Phase")
+@Category({"Email Bulk Sender", "SMTP"})
+@StackTrace(false)
+public class SmtpPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Success")
+    public boolean success;
+}
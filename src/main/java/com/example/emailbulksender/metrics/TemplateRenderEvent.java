@@ -0,0 +1,21 @@
+package com.example.emailbulksender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.emailbulksender.TemplateRender")
+@Label("Email Template Render")
+@Description("Campaign HTML body rendered, once per campaign")
+@Category({"Email Bulk Sender", "Send"})
+@StackTrace(false)
+public class TemplateRenderEvent extends Event {
+
+    @Label("HTML Length")
+    @DataAmount(DataAmount.BYTES)
+    public int htmlLength;
+}
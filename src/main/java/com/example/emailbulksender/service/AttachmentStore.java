@@ -0,0 +1,171 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.dto.AttachmentInfo;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for email attachments.
+ * Blobs are named by the SHA-256 of their content and reference-counted,
+ * so the same file uploaded twice is stored once and is only deleted
+ * when the last holder (upload list or a campaign being prepared) releases it.
+ * A queued campaign carries its own copy inside its prepared message, so it holds no reference.
+ */
+@Service
+@Slf4j
+public class AttachmentStore {
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    // Blob names (SHA-256 hex) and interrupted uploads; nothing else in the directory is touched
+    private static final Pattern STORE_FILE = Pattern.compile("[0-9a-f]{64}|upload-.*\\.tmp");
+
+    private final Path storeDir;
+
+    // Blob id -> number of holders
+    private final Map<String, Integer> refCounts = new HashMap<>();
+
+    public AttachmentStore(@Value("${attachment.store.dir:uploads/attachments}") String storeDir) {
+        this.storeDir = Paths.get(storeDir);
+    }
+
+    /**
+     * Reference counts live in memory, so every blob left from a previous run is unreferenced
+     */
+    @PostConstruct
+    public void sweep() {
+        if (!Files.isDirectory(storeDir)) {
+            return;
+        }
+
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(storeDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (STORE_FILE.matcher(file.getFileName().toString()).matches()) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to sweep attachment store {}: {}", storeDir, e.getMessage());
+        }
+
+        if (deleted > 0) {
+            log.info("Removed {} unreferenced attachment file(s) from {}", deleted, storeDir);
+        }
+    }
+
+    /**
+     * Stream an upload to disk and register it in the store.
+     * The caller owns one reference to the returned blob and must release it.
+     */
+    public AttachmentInfo store(MultipartFile file) throws IOException {
+        Files.createDirectories(storeDir);
+
+        MessageDigest digest = newDigest();
+        Path tempFile = Files.createTempFile(storeDir, "upload-", ".tmp");
+        long size;
+
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            // Copy in bounded chunks so memory stays constant regardless of file size
+            long transferred;
+            size = 0;
+            while ((transferred = target.transferFrom(source, size, TRANSFER_CHUNK)) > 0) {
+                size += transferred;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        String blobId = HexFormat.of().formatHex(digest.digest());
+        Path blob = storeDir.resolve(blobId);
+
+        synchronized (this) {
+            if (Files.exists(blob)) {
+                // Same content already stored, drop the duplicate copy
+                Files.delete(tempFile);
+                log.info("Attachment {} already stored, reusing blob {}", file.getOriginalFilename(), blobId);
+            } else {
+                Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+            refCounts.merge(blobId, 1, Integer::sum);
+        }
+
+        return new AttachmentInfo(UUID.randomUUID().toString(), blobId, file.getOriginalFilename(), file.getContentType(), size);
+    }
+
+    /**
+     * Take an additional reference to a stored blob
+     */
+    public synchronized void retain(String id) {
+        Integer count = refCounts.get(id);
+        if (count == null) {
+            throw new IllegalArgumentException("Unknown attachment: " + id);
+        }
+        refCounts.put(id, count + 1);
+    }
+
+    /**
+     * Drop a reference to a stored blob, deleting it once nothing holds it
+     */
+    public synchronized void release(String id) {
+        Integer count = refCounts.get(id);
+        if (count == null) {
+            log.warn("Release of unknown attachment: {}", id);
+            return;
+        }
+        if (count > 1) {
+            refCounts.put(id, count - 1);
+            return;
+        }
+
+        refCounts.remove(id);
+        try {
+            Files.deleteIfExists(storeDir.resolve(id));
+            log.info("Attachment blob deleted: {}", id);
+        } catch (IOException e) {
+            log.error("Failed to delete attachment blob {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolve the on-disk location of a stored blob
+     */
+    public Path getPath(String id) {
+        return storeDir.resolve(id);
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.dto.AttachmentInfo;
+import com.example.emailbulksender.dto.CampaignPriority;
+import com.example.emailbulksender.dto.CampaignStatus;
+import com.example.emailbulksender.dto.SchedulerStatus;
+import com.example.emailbulksender.metrics.SendMetrics;
+import jakarta.mail.MessagingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares SMTP send slots between concurrently running campaigns.
+ * Each campaign keeps its own recipient queue and slots are handed out by
+ * weighted fair queuing: every send advances the campaign's virtual time by
+ * 1/weight and the eligible campaign with the lowest virtual time goes next.
+ * A small campaign therefore starts immediately next to a large one, and
+ * a single campaign still uses every slot when nothing else is running.
+ * Send slots run on the sendSlotExecutor pool; on shutdown queued recipients
+ * are dropped and in-progress sends are allowed to finish.
+ */
+@Service
+@Slf4j
+public class CampaignScheduler implements SmartLifecycle {
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SendMetrics sendMetrics;
+
+    @Autowired
+    @Qualifier("sendSlotExecutor")
+    private TaskExecutor sendSlotExecutor;
+
+    private final int sendSlots;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+
+    // Campaigns with recipients still queued or in flight, guarded by lock
+    private final List<Campaign> campaigns = new ArrayList<>();
+    private double virtualTime = 0;
+    private int busySlots = 0;
+    private boolean running = false;
+
+    private final AtomicLong campaignIds = new AtomicLong();
+
+    public CampaignScheduler(@Value("${scheduler.send-slots:4}") int sendSlots) {
+        if (sendSlots < 1) {
+            throw new IllegalArgumentException("scheduler.send-slots must be at least 1");
+        }
+        this.sendSlots = sendSlots;
+    }
+
+    @Override
+    public void start() {
+        lock.lock();
+        try {
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < sendSlots; i++) {
+            sendSlotExecutor.execute(this::runWorker);
+        }
+        log.info("Campaign scheduler started with {} send slots", sendSlots);
+    }
+
+    /**
+     * Stop handing out recipients. Runs before the executor shuts down (it depends on it),
+     * so workers leave their loops after the current send and the pool can drain.
+     */
+    @Override
+    public void stop() {
+        List<Campaign> dropped = new ArrayList<>();
+
+        lock.lock();
+        try {
+            running = false;
+            workAvailable.signalAll();
+            // Campaigns with a send in flight are released by their last complete()
+            for (Campaign campaign : campaigns) {
+                if (campaign.inFlight == 0) {
+                    dropped.add(campaign);
+                }
+            }
+            campaigns.removeAll(dropped);
+        } finally {
+            lock.unlock();
+        }
+
+        for (Campaign campaign : dropped) {
+            log.warn("Campaign {} stopped with {} recipients not sent", campaign.id, campaign.emails.size() - campaign.next);
+            release(campaign);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a campaign for sending
+     * @param attachments - Attachments to embed; the blobs are read only while the campaign email is prepared
+     * @param startAt - Earliest time to start sending, or null to start now
+     * @return campaign id
+     */
+    public String submit(List<String> emails, String subject, String message, List<AttachmentInfo> attachments,
+                         CampaignPriority priority, Instant startAt) throws MessagingException, IOException {
+        // Render, encode and body-hash once for the whole campaign
+        PreparedEmail email = emailService.prepareCampaignEmail(subject, message, attachments);
+
+        Campaign campaign = new Campaign(
+                "c" + campaignIds.incrementAndGet(),
+                emails, email,
+                priority != null ? priority : CampaignPriority.NORMAL,
+                startAt
+        );
+
+        lock.lock();
+        try {
+            if (!running) {
+                email.close();
+                throw new IllegalStateException("Campaign scheduler is not running");
+            }
+            enqueue(campaign);
+        } finally {
+            lock.unlock();
+        }
+
+        log.info("Campaign {} queued: {} recipients, priority {}, start at {}",
+                campaign.id, emails.size(), campaign.priority, startAt != null ? startAt : "now");
+        return campaign.id;
+    }
+
+    /**
+     * Snapshot of queue depth and per-campaign progress
+     */
+    public SchedulerStatus getStatus() {
+        return getStatus(System.currentTimeMillis());
+    }
+
+    SchedulerStatus getStatus(long now) {
+        lock.lock();
+        try {
+            int activeWeight = 0;
+            for (Campaign campaign : campaigns) {
+                if (campaign.isEligible(now)) {
+                    activeWeight += campaign.priority.getWeight();
+                }
+            }
+
+            int queueDepth = 0;
+            List<CampaignStatus> statuses = new ArrayList<>();
+            for (Campaign campaign : campaigns) {
+                int pending = campaign.emails.size() - campaign.next;
+                queueDepth += pending;
+                double share = campaign.isEligible(now) ? (double) campaign.priority.getWeight() / activeWeight : 0;
+                statuses.add(new CampaignStatus(
+                        campaign.id,
+                        campaign.priority,
+                        campaign.priority.getWeight(),
+                        campaign.startAt,
+                        pending,
+                        campaign.inFlight,
+                        campaign.sent,
+                        campaign.failed,
+                        share
+                ));
+            }
+
+            return new SchedulerStatus(sendSlots, busySlots, queueDepth, statuses);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add a campaign to the queue. It joins at the current virtual time so it
+     * neither waits behind nor jumps past the backlog of running campaigns.
+     */
+    void enqueue(Campaign campaign) {
+        lock.lock();
+        try {
+            campaign.pass = virtualTime;
+            campaigns.add(campaign);
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Campaign campaign;
+            String recipient;
+
+            lock.lock();
+            try {
+                campaign = awaitNextCampaign();
+                if (campaign == null) {
+                    return;
+                }
+                recipient = campaign.emails.get(campaign.next++);
+                campaign.inFlight++;
+                busySlots++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            // Nothing thrown while sending or bookkeeping may end the loop, or the slot is lost for good
+            try {
+                send(campaign, recipient);
+            } catch (RuntimeException e) {
+                log.error("Send slot error in campaign {}: {}", campaign.id, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void send(Campaign campaign, String recipient) {
+        boolean success = false;
+        long start = System.nanoTime();
+        try {
+            emailService.sendEmail(recipient, campaign.email);
+            success = true;
+            log.info("Email sent successfully to: {}", recipient);
+        } catch (Exception e) {
+            log.error("Failed to send email to: {}. Error: {}", recipient, e.getMessage());
+        } finally {
+            try {
+                sendMetrics.recordSend(System.nanoTime() - start, success);
+            } finally {
+                complete(campaign, success);
+            }
+        }
+    }
+
+    /**
+     * Wait until a campaign has an eligible recipient and pick it.
+     * Must be called with the lock held; returns null once the scheduler is stopped.
+     */
+    private Campaign awaitNextCampaign() throws InterruptedException {
+        while (running) {
+            long now = System.currentTimeMillis();
+            Campaign next = pickNext(now);
+            if (next != null) {
+                return next;
+            }
+
+            long nextStart = nextStartTime();
+            if (nextStart == Long.MAX_VALUE) {
+                workAvailable.await();
+            } else {
+                workAvailable.await(nextStart - now, TimeUnit.MILLISECONDS);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pick the eligible campaign with the lowest virtual time and charge it one send.
+     * Must be called with the lock held; returns null if no campaign can send at {@code now}.
+     */
+    Campaign pickNext(long now) {
+        Campaign best = null;
+        for (Campaign campaign : campaigns) {
+            if (!campaign.isEligible(now)) {
+                continue;
+            }
+            // A campaign that was waiting for its start time does not bank credit
+            campaign.pass = Math.max(campaign.pass, virtualTime);
+            if (best == null || campaign.pass < best.pass) {
+                best = campaign;
+            }
+        }
+
+        if (best != null) {
+            virtualTime = best.pass;
+            best.pass += 1.0 / best.priority.getWeight();
+        }
+        return best;
+    }
+
+    /**
+     * Earliest start time of a delayed campaign with recipients left, or Long.MAX_VALUE if none
+     */
+    private long nextStartTime() {
+        long nextStart = Long.MAX_VALUE;
+        for (Campaign campaign : campaigns) {
+            if (campaign.next < campaign.emails.size() && campaign.startAt != null) {
+                nextStart = Math.min(nextStart, campaign.startAt.toEpochMilli());
+            }
+        }
+        return nextStart;
+    }
+
+    private void complete(Campaign campaign, boolean success) {
+        boolean finished;
+
+        lock.lock();
+        try {
+            campaign.inFlight--;
+            busySlots--;
+            if (success) {
+                campaign.sent++;
+            } else {
+                campaign.failed++;
+            }
+            // After stop() a campaign is dropped as soon as its last in-flight send returns
+            finished = campaign.inFlight == 0 && (campaign.next >= campaign.emails.size() || !running);
+            if (finished) {
+                campaigns.remove(campaign);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (finished) {
+            int notSent = campaign.emails.size() - campaign.next;
+            if (notSent > 0) {
+                log.warn("Campaign {} stopped with {} recipients not sent. Success: {}, Failed: {}",
+                        campaign.id, notSent, campaign.sent, campaign.failed);
+            } else {
+                log.info("Campaign {} completed. Success: {}, Failed: {}", campaign.id, campaign.sent, campaign.failed);
+            }
+            release(campaign);
+        }
+    }
+
+    /**
+     * Delete the campaign's prepared message, which holds its only copy of the attachments
+     */
+    private void release(Campaign campaign) {
+        try {
+            campaign.email.close();
+        } catch (RuntimeException e) {
+            log.error("Failed to clean up prepared email of campaign {}: {}", campaign.id, e.getMessage());
+        }
+    }
+
+    static class Campaign {
+        final String id;
+        final List<String> emails;
+        final PreparedEmail email;
+        final CampaignPriority priority;
+        final Instant startAt;
+
+        // Scheduling state, guarded by the scheduler lock
+        double pass;
+        int next;
+        int inFlight;
+        int sent;
+        int failed;
+
+        Campaign(String id, List<String> emails, PreparedEmail email, CampaignPriority priority, Instant startAt) {
+            this.id = id;
+            this.emails = emails;
+            this.email = email;
+            this.priority = priority;
+            this.startAt = startAt;
+        }
+
+        boolean isEligible(long now) {
+            return next < emails.size() && (startAt == null || startAt.toEpochMilli() <= now);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.metrics.DkimSignEvent;
+import com.example.emailbulksender.metrics.SendMetrics;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * DKIM signer (RFC 6376, relaxed/relaxed) for rsa-sha256 and ed25519-sha256 keys.
+ * The private key is loaded once at startup. The body hash is computed separately
+ * so a campaign can hash its shared body once and only sign headers per message.
+ */
+@Service
+@Slf4j
+public class DkimSigner {
+
+    private static final String HEADER_NAME = "DKIM-Signature";
+
+    // Headers covered by the signature, when present
+    private static final String[] SIGNED_HEADERS = {
+            "From", "To", "Subject", "Date", "Message-ID", "MIME-Version", "Content-Type"
+    };
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final boolean enabled;
+    private final String domain;
+    private final String selector;
+    private final String algorithm;
+    private final ThreadLocal<Signature> signatures;
+    private final SendMetrics sendMetrics;
+
+    public DkimSigner(@Value("${dkim.enabled:false}") boolean enabled,
+                      @Value("${dkim.domain:}") String domain,
+                      @Value("${dkim.selector:}") String selector,
+                      @Value("${dkim.private-key:}") String privateKeyPath,
+                      SendMetrics sendMetrics) {
+        this.enabled = enabled;
+        this.domain = domain;
+        this.selector = selector;
+        this.sendMetrics = sendMetrics;
+
+        if (!enabled) {
+            this.algorithm = null;
+            this.signatures = null;
+            return;
+        }
+
+        if (domain.isBlank() || selector.isBlank() || privateKeyPath.isBlank()) {
+            throw new IllegalStateException("dkim.domain, dkim.selector and dkim.private-key are required when DKIM is enabled");
+        }
+
+        PrivateKey privateKey = loadPrivateKey(privateKeyPath);
+        this.algorithm = "RSA".equals(privateKey.getAlgorithm()) ? "rsa-sha256" : "ed25519-sha256";
+        String jcaAlgorithm = "RSA".equals(privateKey.getAlgorithm()) ? "SHA256withRSA" : "Ed25519";
+
+        // Signature objects are not thread-safe, keep one initialized instance per send slot
+        this.signatures = ThreadLocal.withInitial(() -> {
+            try {
+                Signature signature = Signature.getInstance(jcaAlgorithm);
+                signature.initSign(privateKey);
+                return signature;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to initialize DKIM signature", e);
+            }
+        });
+
+        log.info("DKIM signing enabled: d={}, s={}, a={}", domain, selector, algorithm);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Compute the bh= value: SHA-256 of the relaxed-canonicalized body, base64 encoded.
+     * Reads the body as a stream so memory stays bounded by the longest line.
+     */
+    public String bodyHash(InputStream body) throws IOException {
+        MessageDigest digest = sha256();
+        ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+        boolean pendingSpace = false;
+        int emptyLines = 0;
+
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    // Trailing whitespace is dropped, empty lines are held back until more content follows
+                    pendingSpace = false;
+                    if (line.size() == 0) {
+                        emptyLines++;
+                    } else {
+                        for (; emptyLines > 0; emptyLines--) {
+                            digest.update(CRLF);
+                        }
+                        digest.update(line.toByteArray());
+                        digest.update(CRLF);
+                        line.reset();
+                    }
+                } else if (b == ' ' || b == '\t') {
+                    pendingSpace = true;
+                } else if (b != '\r') {
+                    if (pendingSpace) {
+                        line.write(' ');
+                        pendingSpace = false;
+                    }
+                    line.write(b);
+                }
+            }
+        }
+
+        if (line.size() > 0) {
+            for (; emptyLines > 0; emptyLines--) {
+                digest.update(CRLF);
+            }
+            digest.update(line.toByteArray());
+            digest.update(CRLF);
+        }
+
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * Sign the message headers with a precomputed body hash and set the DKIM-Signature header
+     */
+    public void sign(MimeMessage message, String bodyHash) throws MessagingException {
+        DkimSignEvent event = new DkimSignEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        message.removeHeader(HEADER_NAME);
+
+        List<String> signedNames = new ArrayList<>();
+        StringBuilder signedData = new StringBuilder(1024);
+        for (String name : SIGNED_HEADERS) {
+            String headerLine = lastHeaderLine(message, name);
+            if (headerLine != null) {
+                signedNames.add(name);
+                signedData.append(canonicalizeHeader(headerLine)).append("\r\n");
+            }
+        }
+
+        String tags = "v=1; a=" + algorithm + "; c=relaxed/relaxed; d=" + domain + "; s=" + selector
+                + "; t=" + (System.currentTimeMillis() / 1000) + "; h=" + String.join(":", signedNames)
+                + "; bh=" + bodyHash + "; b=";
+        // The signature header itself is signed with an empty b= and no trailing CRLF
+        signedData.append(canonicalizeHeader(HEADER_NAME + ": " + tags));
+
+        byte[] signatureBytes = signHeaderData(signedData.toString().getBytes(StandardCharsets.UTF_8));
+        // Folding at tag separators is undone by relaxed canonicalization, so it doesn't affect the signature
+        String header = tags.replace("; h=", ";\r\n\th=").replace("; bh=", ";\r\n\tbh=").replace("; b=", ";\r\n\tb=");
+        message.setHeader(HEADER_NAME, header + fold(Base64.getEncoder().encodeToString(signatureBytes)));
+
+        sendMetrics.recordDkimSign(System.nanoTime() - start);
+        event.algorithm = algorithm;
+        event.commit();
+    }
+
+    private byte[] signHeaderData(byte[] data) {
+        try {
+            Signature signature = signatures.get();
+            if ("ed25519-sha256".equals(algorithm)) {
+                // RFC 8463: Ed25519 signs the SHA-256 digest of the header data
+                data = sha256().digest(data);
+            }
+            signature.update(data);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("DKIM signing failed", e);
+        }
+    }
+
+    /**
+     * Relaxed header canonicalization: lowercase name, unfold, collapse whitespace
+     */
+    private String canonicalizeHeader(String headerLine) {
+        int colon = headerLine.indexOf(':');
+        String name = headerLine.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+        String value = headerLine.substring(colon + 1)
+                .replace("\r\n", "")
+                .replace("\n", "")
+                .replaceAll("[ \t]+", " ")
+                .trim();
+        return name + ":" + value;
+    }
+
+    private String lastHeaderLine(MimeMessage message, String name) throws MessagingException {
+        String last = null;
+        Enumeration<String> lines = message.getMatchingHeaderLines(new String[]{name});
+        while (lines.hasMoreElements()) {
+            last = lines.nextElement();
+        }
+        return last;
+    }
+
+    /**
+     * Fold the b= value; whitespace inside b= is ignored by verifiers
+     */
+    private String fold(String value) {
+        StringBuilder folded = new StringBuilder(value.length() + value.length() / 38);
+        for (int i = 0; i < value.length(); i += 76) {
+            if (i > 0) {
+                folded.append("\r\n\t");
+            }
+            folded.append(value, i, Math.min(value.length(), i + 76));
+        }
+        return folded.toString();
+    }
+
+    private PrivateKey loadPrivateKey(String path) {
+        try {
+            String pem = Files.readString(Paths.get(path));
+            String base64 = pem.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64));
+            try {
+                return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+            } catch (InvalidKeySpecException e) {
+                return KeyFactory.getInstance("Ed25519").generatePrivate(keySpec);
+            }
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to load DKIM private key (PKCS#8 PEM expected): " + path, e);
+        }
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
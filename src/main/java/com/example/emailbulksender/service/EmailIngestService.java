@@ -0,0 +1,145 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.dto.EmailIngestResult;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming ingestion of email addresses from a JSON array or NDJSON body.
+ * The body is parsed token by token, each address is validated as it arrives
+ * and valid ones are handed on in fixed-size batches, so memory stays bounded
+ * by the batch size regardless of payload size.
+ */
+@Service
+public class EmailIngestService {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+
+    // Longest valid address (RFC 5321 path limit); longer items are counted as invalid
+    private static final int MAX_EMAIL_LENGTH = 254;
+
+    // Hard cap on a single token so one huge value can't exhaust memory; ends the stream with an error
+    private static final int MAX_TOKEN_LENGTH = 64 * 1024;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JsonFactory jsonFactory = JsonFactory.builder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(MAX_TOKEN_LENGTH).build())
+            .build();
+
+    /**
+     * Parse addresses from the body and add the new valid ones to the target set
+     * @param body - Request body
+     * @param ndjson - true for one JSON string per line, false for a JSON array of strings
+     * @param target - Address set to add to, also used for deduplication
+     */
+    public EmailIngestResult ingest(InputStream body, boolean ndjson, Set<String> target) throws IOException {
+        EmailIngestResult result = ingest(body, ndjson, batch -> {
+            int added = 0;
+            for (String email : batch) {
+                if (target.add(email)) {
+                    added++;
+                }
+            }
+            return added;
+        });
+        result.setTotalEmails(target.size());
+        return result;
+    }
+
+    /**
+     * Parse addresses from the body and pass the valid ones to {@code merge} in batches.
+     * Items parsed before a syntax error are still merged; the error is reported in the result.
+     * @param merge - Adds a batch to the destination and returns how many addresses were new;
+     *                the rest are counted as duplicates
+     */
+    public EmailIngestResult ingest(InputStream body, boolean ndjson, ToIntFunction<List<String>> merge) throws IOException {
+        EmailIngestResult result = new EmailIngestResult();
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (ndjson) {
+                // Consecutive root-level values, one per line
+                JsonToken token;
+                while ((token = parser.nextToken()) != null) {
+                    addItem(parser, token, batch, merge, result);
+                }
+            } else {
+                JsonToken token = parser.nextToken();
+                if (token != null) {
+                    if (token != JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("Expected a JSON array of email addresses");
+                    }
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == null) {
+                            throw new IllegalArgumentException("Unexpected end of JSON array");
+                        }
+                        addItem(parser, token, batch, merge, result);
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            JsonLocation location = e.getLocation();
+            result.setError(location == null ? e.getOriginalMessage()
+                    : e.getOriginalMessage() + " at line " + location.getLineNr() + ", column " + location.getColumnNr());
+        } catch (IllegalArgumentException e) {
+            result.setError(e.getMessage());
+        }
+
+        flush(batch, merge, result);
+        return result;
+    }
+
+    private void addItem(JsonParser parser, JsonToken token, List<String> batch, ToIntFunction<List<String>> merge,
+                         EmailIngestResult result) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            // Skip nested objects/arrays without materializing them
+            parser.skipChildren();
+            result.setReceived(result.getReceived() + 1);
+            result.setNotString(result.getNotString() + 1);
+            return;
+        }
+
+        String email = parser.getText().trim();
+        result.setReceived(result.getReceived() + 1);
+        if (!isValidEmail(email)) {
+            result.setInvalid(result.getInvalid() + 1);
+            return;
+        }
+
+        batch.add(email);
+        if (batch.size() >= BATCH_SIZE) {
+            flush(batch, merge, result);
+        }
+    }
+
+    private void flush(List<String> batch, ToIntFunction<List<String>> merge, EmailIngestResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int added = merge.applyAsInt(batch);
+        result.setAccepted(result.getAccepted() + added);
+        result.setDuplicates(result.getDuplicates() + batch.size() - added);
+        batch.clear();
+    }
+
+    /**
+     * Validate email format
+     */
+    private boolean isValidEmail(String email) {
+        return !email.isEmpty() && email.length() <= MAX_EMAIL_LENGTH && EMAIL_PATTERN.matcher(email).matches();
+    }
+}
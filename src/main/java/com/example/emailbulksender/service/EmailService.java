@@ -1,18 +1,21 @@
 package com.example.emailbulksender.service;
 
+import com.example.emailbulksender.dto.AttachmentInfo;
+import com.example.emailbulksender.metrics.MimeBuildEvent;
+import com.example.emailbulksender.metrics.SendMetrics;
+import com.example.emailbulksender.metrics.TemplateRenderEvent;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.util.List;
 
 @Service
@@ -22,76 +25,80 @@ public class EmailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Autowired
+    private SendMetrics sendMetrics;
+
+    @Autowired
+    private DkimSigner dkimSigner;
+
+    @Value("${spring.mail.username}")
+    private String fromAddress;
+
     /**
-     * Send bulk emails asynchronously
-     * @param emails - List of email addresses
+     * Render and encode a campaign email once; recipients are added per message
      * @param subject - Email subject
      * @param message - Email message body
+     * @param attachments - Attachments to embed; the caller must hold their blobs until this returns
      */
-    @Async
-    public void sendBulkEmails(List<String> emails, String subject, String message, File attachmentFile) {
-        log.info("Starting to send {} emails", emails.size());
-
-        int successCount = 0;
-        int failureCount = 0;
-
-        for (String email : emails) {
-            try {
-                if (attachmentFile != null && attachmentFile.exists()) {
-                    sendEmailWithAttachment(email, subject, message, attachmentFile);
-                } else {
-                    sendEmail(email, subject, message);
-                }
-                successCount++;
-                log.info("Email sent successfully to: {}", email);
-            } catch (Exception e) {
-                failureCount++;
-                log.error("Failed to send email to: {}. Error: {}", email, e.getMessage());
-            }
+    public PreparedEmail prepareCampaignEmail(String subject, String message, List<AttachmentInfo> attachments) throws MessagingException, IOException {
+        String html = renderHtmlEmail(subject, message);
+
+        MimeBuildEvent event = new MimeBuildEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        MimeMessage template = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(template, true, "UTF-8");
+
+        // DKIM requires the From header to be present when signing
+        if (fromAddress != null && !fromAddress.isBlank()) {
+            helper.setFrom(fromAddress);
+        }
+        helper.setSubject(subject);
+        helper.setText(html, true); // true = HTML
+
+        // Attachments are streamed from the store while the campaign email is written
+        for (AttachmentInfo attachment : attachments) {
+            helper.addAttachment(attachment.getFileName(),
+                    new FileSystemResource(attachmentStore.getPath(attachment.getBlobId())));
         }
 
-        log.info("Bulk email sending completed. Success: {}, Failed: {}", successCount, failureCount);
+        PreparedEmail email = PreparedEmail.prepare(template, dkimSigner);
+
+        sendMetrics.recordMimeBuild(System.nanoTime() - start);
+        event.attachments = attachments.size();
+        event.commit();
+
+        return email;
     }
 
     /**
-     * Send a single email without attachment
+     * Send one campaign email to a single recipient
+     * @param to - Recipient email address
+     * @param email - Prepared campaign email
      */
-    private void sendEmail(String to, String subject, String text) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(createHtmlEmail(subject, text), true); // true = HTML
-
-            mailSender.send(message);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to send email", e);
-        }
+    public void sendEmail(String to, PreparedEmail email) throws MessagingException {
+        mailSender.send(email.createMessage(to));
     }
 
     /**
-     * Send a single email with attachment
+     * Render the HTML body, recording the render time
      */
-    private void sendEmailWithAttachment(String to, String subject, String text, File attachmentFile) throws MessagingException {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(createHtmlEmail(subject, text), true); // true = HTML
-
-            // Add attachment
-            byte[] fileContent = Files.readAllBytes(attachmentFile.toPath());
-            helper.addAttachment(attachmentFile.getName(), new ByteArrayResource(fileContent));
-
-            mailSender.send(message);
-        } catch (Exception e) {
-            log.error("Error sending email with attachment: {}", e.getMessage());
-            throw new MessagingException("Failed to send email with attachment", e);
-        }
+    private String renderHtmlEmail(String subject, String text) {
+        TemplateRenderEvent event = new TemplateRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        String html = createHtmlEmail(subject, text);
+
+        sendMetrics.recordTemplateRender(System.nanoTime() - start);
+        event.htmlLength = html.length();
+        event.commit();
+
+        return html;
     }
 
     /**
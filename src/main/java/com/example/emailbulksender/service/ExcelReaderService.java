@@ -1,6 +1,9 @@
 package com.example.emailbulksender.service;
 
+import com.example.emailbulksender.metrics.FileParseEvent;
+import com.example.emailbulksender.metrics.SendMetrics;
 import org.apache.poi.ss.usermodel.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -13,6 +16,9 @@ import java.util.List;
 @Service
 public class ExcelReaderService {
 
+    @Autowired
+    private SendMetrics sendMetrics;
+
     /**
      * Read email addresses from uploaded Excel or CSV file
      * @param file - uploaded file (.xlsx or .csv)
@@ -26,13 +32,25 @@ public class ExcelReaderService {
             throw new IllegalArgumentException("File name is null");
         }
 
+        FileParseEvent event = new FileParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        List<String> emails;
         if (fileName.endsWith(".csv")) {
-            return readEmailsFromCsv(file);
+            emails = readEmailsFromCsv(file);
         } else if (fileName.endsWith(".xlsx") || fileName.endsWith(".xls")) {
-            return readEmailsFromExcel(file);
+            emails = readEmailsFromExcel(file);
         } else {
             throw new IllegalArgumentException("Unsupported file format. Please upload .xlsx or .csv file");
         }
+
+        sendMetrics.recordFileParse(System.nanoTime() - start, emails.size());
+        event.fileName = fileName;
+        event.recipients = emails.size();
+        event.commit();
+
+        return emails;
     }
 
     /**
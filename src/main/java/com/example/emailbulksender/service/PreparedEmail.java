@@ -0,0 +1,141 @@
+package com.example.emailbulksender.service;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.SharedFileInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * Campaign email serialized once to a temp file.
+ * Every recipient's message shares the same encoded body (same MIME boundary, same bytes)
+ * and only gets its own To, Date and Message-ID headers, so the body is rendered,
+ * encoded and DKIM body-hashed once per campaign instead of once per recipient.
+ */
+@Slf4j
+public class PreparedEmail implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final Session session;
+    private final Path file;
+    private final SharedFileInputStream source;
+    private final DkimSigner dkimSigner;
+    // DKIM bh= of the shared body, null when signing is disabled
+    private final String bodyHash;
+
+    private PreparedEmail(Session session, Path file, SharedFileInputStream source, DkimSigner dkimSigner, String bodyHash) {
+        this.session = session;
+        this.file = file;
+        this.source = source;
+        this.dkimSigner = dkimSigner;
+        this.bodyHash = bodyHash;
+    }
+
+    /**
+     * Serialize a template message (everything except recipients) and hash its body
+     */
+    public static PreparedEmail prepare(MimeMessage template, DkimSigner dkimSigner) throws IOException, MessagingException {
+        template.saveChanges();
+
+        Path file = Files.createTempFile("campaign-", ".eml");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                // Date and Message-ID are set per recipient when each message is saved
+                template.writeTo(out, new String[]{"Date", "Message-ID"});
+            }
+
+            SharedFileInputStream source = new SharedFileInputStream(file.toFile(), READ_BUFFER_SIZE);
+            try {
+                String bodyHash = null;
+                if (dkimSigner.isEnabled()) {
+                    MimeMessage parsed = new MimeMessage(template.getSession(), source.newStream(0, -1));
+                    try (InputStream body = parsed.getRawInputStream()) {
+                        bodyHash = dkimSigner.bodyHash(body);
+                    }
+                }
+
+                return new PreparedEmail(template.getSession(), file, source, dkimSigner, bodyHash);
+            } catch (IOException | MessagingException | RuntimeException e) {
+                source.close();
+                throw e;
+            }
+        } catch (IOException | MessagingException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Create the message for one recipient, sharing the prepared body
+     */
+    public MimeMessage createMessage(String to) throws MessagingException {
+        RecipientMimeMessage message = new RecipientMimeMessage(session, source.newStream(0, -1), dkimSigner, bodyHash);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(to, true));
+        return message;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        try {
+            source.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Failed to delete prepared campaign email {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Message parsed from the shared file. Saving only fills in missing headers and never
+     * re-encodes the content, so the body written to SMTP is exactly the hashed one.
+     */
+    private static class RecipientMimeMessage extends MimeMessage {
+
+        private final DkimSigner dkimSigner;
+        private final String bodyHash;
+
+        RecipientMimeMessage(Session session, InputStream in, DkimSigner dkimSigner, String bodyHash) throws MessagingException {
+            super(session, in);
+            this.dkimSigner = dkimSigner;
+            this.bodyHash = bodyHash;
+        }
+
+        /**
+         * JavaMailSenderImpl saves every message right before handing it to the transport.
+         * Signing here covers the final headers and keeps it out of the SMTP data phase timing.
+         */
+        @Override
+        public void saveChanges() throws MessagingException {
+            saved = true;
+            updateHeaders();
+            if (bodyHash != null) {
+                dkimSigner.sign(this, bodyHash);
+            }
+        }
+
+        @Override
+        protected void updateHeaders() throws MessagingException {
+            if (getHeader("Date") == null) {
+                setSentDate(new Date());
+            }
+            if (getHeader("Message-ID") == null) {
+                updateMessageID();
+            }
+        }
+    }
+}
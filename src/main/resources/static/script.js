@@ -263,7 +263,7 @@ async function uploadAttachment(file) {
 
         if (result.success) {
             // Show attachment info
-            document.getElementById('attachmentName').textContent = result.data;
+            document.getElementById('attachmentName').textContent = result.data.fileName;
             document.getElementById('attachmentSize').textContent = formatFileSize(file.size);
             document.getElementById('attachmentInfo').style.display = 'flex';
             document.getElementById('attachmentUpload').style.display = 'none';
@@ -466,7 +466,7 @@ document.addEventListener('DOMContentLoaded', function() {
         .then(response => response.json())
         .then(result => {
             if (result.success && result.data) {
-                document.getElementById('attachmentName').textContent = result.data;
+                document.getElementById('attachmentName').textContent = result.data.map(a => a.fileName).join(', ');
                 document.getElementById('attachmentInfo').style.display = 'flex';
                 document.getElementById('attachmentUpload').style.display = 'none';
                 attachmentUploaded = true;
@@ -0,0 +1,161 @@
+package com.example.emailbulksender.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstrumentedSmtpTransportTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private StubSmtpServer server;
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void eachPhaseIsRecordedOnce() throws Exception {
+        server = new StubSmtpServer("235 2.7.0 Authenticated", "250 2.0.0 Queued");
+
+        sender().send(message());
+
+        assertPhase("connect", 1, 0);
+        assertPhase("auth", 1, 0);
+        assertPhase("data", 1, 0);
+    }
+
+    @Test
+    void rejectedAuthIsRecordedAsAuthFailure() throws Exception {
+        server = new StubSmtpServer("535 5.7.8 Authentication failed", "250 2.0.0 Queued");
+
+        assertThrows(MailException.class, () -> sender().send(message()));
+
+        assertPhase("connect", 1, 0);
+        assertPhase("auth", 0, 1);
+        assertPhase("data", 0, 0);
+    }
+
+    @Test
+    void rejectedMessageIsRecordedAsDataFailure() throws Exception {
+        server = new StubSmtpServer("235 2.7.0 Authenticated", "554 5.7.1 Rejected");
+
+        assertThrows(MailException.class, () -> sender().send(message()));
+
+        assertPhase("connect", 1, 0);
+        assertPhase("auth", 1, 0);
+        assertPhase("data", 0, 1);
+    }
+
+    private InstrumentedJavaMailSender sender() {
+        InstrumentedJavaMailSender sender = new InstrumentedJavaMailSender(new SendMetrics(registry));
+        sender.setHost("127.0.0.1");
+        sender.setPort(server.getPort());
+        sender.setUsername("user");
+        sender.setPassword("secret");
+        sender.getJavaMailProperties().put("mail.smtp.auth", "true");
+        sender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        return sender;
+    }
+
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("sender@example.com");
+        message.setTo("recipient@example.org");
+        message.setSubject("Test");
+        message.setText("Hello");
+        return message;
+    }
+
+    private void assertPhase(String phase, long successes, double failures) {
+        assertEquals(successes, registry.get("email.smtp.phase").tag("phase", phase).timer().count(), phase + " timings");
+        assertEquals(failures, registry.get("email.smtp.phase.failures").tag("phase", phase).counter().count(), phase + " failures");
+    }
+
+    /**
+     * Minimal SMTP server for one connection at a time, with scripted AUTH and end-of-data replies
+     */
+    private static class StubSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final String authReply;
+        private final String dataReply;
+
+        StubSmtpServer(String authReply, String dataReply) throws IOException {
+            this.serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            this.authReply = authReply;
+            this.dataReply = dataReply;
+            Thread thread = new Thread(this::serve, "stub-smtp");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void serve() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    converse(socket);
+                } catch (IOException e) {
+                    // Closed by the test or the client hung up
+                }
+            }
+        }
+
+        private void converse(Socket socket) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 stub ESMTP");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO")) {
+                    reply(out, "250-stub\r\n250 AUTH PLAIN");
+                } else if (command.startsWith("AUTH")) {
+                    reply(out, authReply);
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        // Discard the message
+                    }
+                    reply(out, dataReply);
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        }
+
+        private void reply(OutputStream out, String reply) throws IOException {
+            out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.dto.AttachmentInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AttachmentStoreTests {
+
+    @TempDir
+    Path storeDir;
+
+    @Test
+    void sameContentUnderDifferentNamesSharesOneBlob() throws Exception {
+        AttachmentStore store = new AttachmentStore(storeDir.toString());
+
+        AttachmentInfo first = store.store(new MockMultipartFile("file", "a.txt", "text/plain", "hello".getBytes()));
+        AttachmentInfo second = store.store(new MockMultipartFile("file", "b.txt", "text/plain", "hello".getBytes()));
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(first.getBlobId(), second.getBlobId());
+        assertEquals("a.txt", first.getFileName());
+        assertEquals("b.txt", second.getFileName());
+        assertEquals(5, second.getSize());
+
+        store.release(first.getBlobId());
+        assertTrue(Files.exists(store.getPath(second.getBlobId())));
+
+        store.release(second.getBlobId());
+        assertFalse(Files.exists(store.getPath(second.getBlobId())));
+    }
+
+    @Test
+    void retainedBlobOutlivesUploadRelease() throws Exception {
+        AttachmentStore store = new AttachmentStore(storeDir.toString());
+        AttachmentInfo attachment = store.store(new MockMultipartFile("file", "a.txt", "text/plain", "data".getBytes()));
+
+        store.retain(attachment.getBlobId());
+        store.release(attachment.getBlobId());
+        assertTrue(Files.exists(store.getPath(attachment.getBlobId())));
+
+        store.release(attachment.getBlobId());
+        assertFalse(Files.exists(store.getPath(attachment.getBlobId())));
+    }
+
+    @Test
+    void sweepRemovesLeftoverBlobsAndTempFilesOnly() throws Exception {
+        Path blob = Files.writeString(storeDir.resolve("a".repeat(64)), "old");
+        Path temp = Files.writeString(storeDir.resolve("upload-123.tmp"), "partial");
+        Path other = Files.writeString(storeDir.resolve("README.txt"), "keep");
+
+        new AttachmentStore(storeDir.toString()).sweep();
+
+        assertFalse(Files.exists(blob));
+        assertFalse(Files.exists(temp));
+        assertTrue(Files.exists(other));
+    }
+}
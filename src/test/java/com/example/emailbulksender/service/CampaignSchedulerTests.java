@@ -0,0 +1,147 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.dto.CampaignPriority;
+import com.example.emailbulksender.dto.CampaignStatus;
+import com.example.emailbulksender.dto.SchedulerStatus;
+import com.example.emailbulksender.metrics.SendMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CampaignSchedulerTests {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    void slotsAreSharedInProportionToWeight() {
+        CampaignScheduler scheduler = new CampaignScheduler(4);
+        CampaignScheduler.Campaign high = campaign("high", 100, CampaignPriority.HIGH, null);
+        CampaignScheduler.Campaign low = campaign("low", 100, CampaignPriority.LOW, null);
+        scheduler.enqueue(high);
+        scheduler.enqueue(low);
+
+        List<String> picks = dispatch(scheduler, NOW, 34);
+
+        assertEquals(32, Collections.frequency(picks, "high"));
+        assertEquals(2, Collections.frequency(picks, "low"));
+    }
+
+    @Test
+    void lateCampaignDoesNotWaitBehindBacklog() {
+        CampaignScheduler scheduler = new CampaignScheduler(4);
+        scheduler.enqueue(campaign("large", 1000, CampaignPriority.NORMAL, null));
+        dispatch(scheduler, NOW, 50);
+
+        scheduler.enqueue(campaign("small", 5, CampaignPriority.NORMAL, null));
+        List<String> picks = dispatch(scheduler, NOW, 10);
+
+        assertEquals(5, Collections.frequency(picks, "small"));
+        assertEquals(5, Collections.frequency(picks, "large"));
+    }
+
+    @Test
+    void delayedCampaignStartsAtStartTimeWithoutBankedCredit() {
+        CampaignScheduler scheduler = new CampaignScheduler(4);
+        scheduler.enqueue(campaign("now", 1000, CampaignPriority.NORMAL, null));
+        scheduler.enqueue(campaign("later", 1000, CampaignPriority.NORMAL, Instant.ofEpochMilli(NOW + 1000)));
+
+        List<String> before = dispatch(scheduler, NOW, 20);
+        assertEquals(20, Collections.frequency(before, "now"));
+
+        List<String> after = dispatch(scheduler, NOW + 1000, 10);
+        assertEquals(5, Collections.frequency(after, "later"));
+        assertEquals(5, Collections.frequency(after, "now"));
+    }
+
+    @Test
+    void nothingIsPickedWhileEveryCampaignIsDelayedOrDone() {
+        CampaignScheduler scheduler = new CampaignScheduler(4);
+        CampaignScheduler.Campaign single = campaign("single", 1, CampaignPriority.NORMAL, null);
+        scheduler.enqueue(single);
+        scheduler.enqueue(campaign("later", 10, CampaignPriority.HIGH, Instant.ofEpochMilli(NOW + 1)));
+
+        assertSame(single, scheduler.pickNext(NOW));
+        single.next++;
+        assertNull(scheduler.pickNext(NOW));
+    }
+
+    @Test
+    void statusSharesAreSplitBetweenEligibleCampaigns() {
+        CampaignScheduler scheduler = new CampaignScheduler(4);
+        scheduler.enqueue(campaign("high", 10, CampaignPriority.HIGH, null));
+        scheduler.enqueue(campaign("low", 10, CampaignPriority.LOW, null));
+        scheduler.enqueue(campaign("later", 10, CampaignPriority.NORMAL, Instant.ofEpochMilli(NOW + 1000)));
+
+        SchedulerStatus status = scheduler.getStatus(NOW);
+
+        assertEquals(4, status.getSendSlots());
+        assertEquals(30, status.getQueueDepth());
+        assertEquals(16.0 / 17, share(status, "high"), 1e-9);
+        assertEquals(1.0 / 17, share(status, "low"), 1e-9);
+        assertEquals(0, share(status, "later"), 1e-9);
+
+        SchedulerStatus started = scheduler.getStatus(NOW + 1000);
+        assertEquals(16.0 / 21, share(started, "high"), 1e-9);
+        assertEquals(4.0 / 21, share(started, "later"), 1e-9);
+    }
+
+    @Test
+    void stopDeletesPreparedEmailOfQueuedCampaigns() throws Exception {
+        MimeMessage template = new MimeMessage(Session.getInstance(new Properties()));
+        template.setText("body");
+        PreparedEmail email = PreparedEmail.prepare(template,
+                new DkimSigner(false, "", "", "", new SendMetrics(new SimpleMeterRegistry())));
+
+        CampaignScheduler scheduler = new CampaignScheduler(4);
+        scheduler.enqueue(new CampaignScheduler.Campaign("c1", List.of("a@example.com"), email, CampaignPriority.NORMAL, null));
+        assertTrue(Files.exists(email.getFile()));
+
+        scheduler.stop();
+
+        assertFalse(Files.exists(email.getFile()));
+        assertEquals(0, scheduler.getStatus(NOW).getCampaigns().size());
+    }
+
+    private static CampaignScheduler.Campaign campaign(String id, int recipients, CampaignPriority priority, Instant startAt) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < recipients; i++) {
+            emails.add(id + i + "@example.com");
+        }
+        return new CampaignScheduler.Campaign(id, emails, null, priority, startAt);
+    }
+
+    /**
+     * Hand out sends the way a worker does and record which campaign got each one
+     */
+    private static List<String> dispatch(CampaignScheduler scheduler, long now, int sends) {
+        List<String> picks = new ArrayList<>();
+        for (int i = 0; i < sends; i++) {
+            CampaignScheduler.Campaign campaign = scheduler.pickNext(now);
+            campaign.next++;
+            picks.add(campaign.id);
+        }
+        return picks;
+    }
+
+    private static double share(SchedulerStatus status, String id) {
+        return status.getCampaigns().stream()
+                .filter(campaign -> campaign.getId().equals(id))
+                .mapToDouble(CampaignStatus::getShare)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.emailbulksender.service;
+
+import com.example.emailbulksender.dto.EmailIngestResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EmailIngestServiceTests {
+
+    private final EmailIngestService service = new EmailIngestService();
+
+    @Test
+    void jsonArrayIsTrimmedAndValidated() throws Exception {
+        Set<String> target = new LinkedHashSet<>();
+
+        EmailIngestResult result = ingest("[\" a@example.com \", \"not-an-email\", \"\", \"b@example.org\"]", false, target);
+
+        assertNull(result.getError());
+        assertEquals(4, result.getReceived());
+        assertEquals(2, result.getAccepted());
+        assertEquals(2, result.getInvalid());
+        assertEquals(List.of("a@example.com", "b@example.org"), List.copyOf(target));
+        assertEquals(2, result.getTotalEmails());
+    }
+
+    @Test
+    void ndjsonReadsOneValuePerLine() throws Exception {
+        Set<String> target = new LinkedHashSet<>();
+
+        EmailIngestResult result = ingest("\"a@example.com\"\n\"b@example.com\"\n\n\"c@example.com\"\n", true, target);
+
+        assertNull(result.getError());
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getAccepted());
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com"), List.copyOf(target));
+    }
+
+    @Test
+    void nonStringItemsAreSkipped() throws Exception {
+        Set<String> target = new LinkedHashSet<>();
+
+        EmailIngestResult result = ingest("[1, {\"email\": \"x@example.com\"}, [\"y@example.com\"], null, true, \"a@example.com\"]", false, target);
+
+        assertNull(result.getError());
+        assertEquals(6, result.getReceived());
+        assertEquals(5, result.getNotString());
+        assertEquals(1, result.getAccepted());
+        assertEquals(Set.of("a@example.com"), target);
+    }
+
+    @Test
+    void duplicatesInBodyAndTargetAreCounted() throws Exception {
+        Set<String> target = new LinkedHashSet<>(List.of("a@example.com"));
+
+        EmailIngestResult result = ingest("[\"a@example.com\", \"b@example.com\", \" b@example.com\"]", false, target);
+
+        assertEquals(3, result.getReceived());
+        assertEquals(1, result.getAccepted());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(2, result.getRejected());
+        assertEquals(2, result.getTotalEmails());
+    }
+
+    @Test
+    void oversizedItemIsInvalidAndParsingContinues() throws Exception {
+        Set<String> target = new LinkedHashSet<>();
+        String longAddress = "a".repeat(250) + "@example.com";
+
+        EmailIngestResult result = ingest("[\"" + longAddress + "\", \"b@example.com\"]", false, target);
+
+        assertNull(result.getError());
+        assertEquals(2, result.getReceived());
+        assertEquals(1, result.getInvalid());
+        assertEquals(Set.of("b@example.com"), target);
+    }
+
+    @Test
+    void malformedBodyReportsErrorAndKeepsEarlierItems() throws Exception {
+        Set<String> target = new LinkedHashSet<>();
+
+        EmailIngestResult result = ingest("[\"a@example.com\", \"b@example.com\" \"c", false, target);
+
+        assertNotNull(result.getError());
+        assertEquals(2, result.getAccepted());
+        assertEquals(Set.of("a@example.com", "b@example.com"), target);
+    }
+
+    @Test
+    void truncatedArrayAndNonArrayAreRejected() throws Exception {
+        EmailIngestResult truncated = ingest("[\"a@example.com\"", false, new LinkedHashSet<>());
+        assertNotNull(truncated.getError());
+        assertEquals(1, truncated.getAccepted());
+
+        EmailIngestResult notArray = ingest("{\"emails\": []}", false, new LinkedHashSet<>());
+        assertEquals("Expected a JSON array of email addresses", notArray.getError());
+        assertEquals(0, notArray.getReceived());
+    }
+
+    @Test
+    void validAddressesAreMergedInBoundedBatches() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 2500; i++) {
+            body.append('"').append("user").append(i).append("@example.com\"\n");
+        }
+        List<Integer> batchSizes = new ArrayList<>();
+
+        // Every other batch is reported as already present
+        EmailIngestResult result = service.ingest(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), true,
+                batch -> {
+                    batchSizes.add(batch.size());
+                    return batchSizes.size() % 2 == 1 ? batch.size() : 0;
+                });
+
+        assertEquals(List.of(1000, 1000, 500), batchSizes);
+        assertEquals(2500, result.getReceived());
+        assertEquals(1500, result.getAccepted());
+        assertEquals(1000, result.getDuplicates());
+    }
+
+    @Test
+    void pendingBatchIsMergedBeforeReportingError() throws Exception {
+        List<String> merged = new ArrayList<>();
+
+        EmailIngestResult result = service.ingest(
+                new ByteArrayInputStream("\"a@example.com\"\n{broken".getBytes(StandardCharsets.UTF_8)), true,
+                batch -> {
+                    merged.addAll(batch);
+                    return batch.size();
+                });
+
+        assertNotNull(result.getError());
+        assertEquals(List.of("a@example.com"), merged);
+        assertEquals(1, result.getAccepted());
+    }
+
+    @Test
+    void emptyBodyIsNotAnError() throws Exception {
+        EmailIngestResult result = ingest("", false, new LinkedHashSet<>());
+
+        assertNull(result.getError());
+        assertEquals(0, result.getReceived());
+    }
+
+    private EmailIngestResult ingest(String body, boolean ndjson, Set<String> target) throws Exception {
+        return service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), ndjson, target);
+    }
+}